@@ -22,6 +22,11 @@ import java.lang.annotation.Target;
  * would be the values.
  *
  * Mandatory fields must have required set to true.
+ *
+ * Values can also be constrained declaratively: a numeric range, a regular expression, a list of allowed values, and,
+ * for collections, arrays and maps, the number of values. The constraints are compiled once per class and checked
+ * while the values are converted, so invalid input fails before the rest of the values are processed.
+ * For maps, the value constraints apply to the part after the "=".
  */
 @Retention(value= RetentionPolicy.RUNTIME)
 @Target(value= ElementType.FIELD)
@@ -30,4 +35,38 @@ public @interface Arg {
 	String value();
 	
 	boolean required() default false;
+	
+	/**
+	 * Smallest accepted value for numeric fields (inclusive).
+	 * The bound is a double, so integral bounds above 2^53 are rounded to the nearest double; integral values
+	 * are compared exactly against that bound, doubles and floats are compared as doubles.
+	 */
+	double min() default Double.NEGATIVE_INFINITY;
+	
+	/**
+	 * Largest accepted value for numeric fields (inclusive).
+	 * The bound is a double, so integral bounds above 2^53 are rounded to the nearest double; integral values
+	 * are compared exactly against that bound, doubles and floats are compared as doubles.
+	 */
+	double max() default Double.POSITIVE_INFINITY;
+	
+	/**
+	 * Regular expression every value must fully match. Empty means no pattern.
+	 */
+	String pattern() default "";
+	
+	/**
+	 * The only values accepted, compared as strings before conversion. Empty means any value.
+	 */
+	String[] allowed() default {};
+	
+	/**
+	 * Minimum number of values for collections, arrays and maps. A minCount greater than 0 also makes the argument mandatory.
+	 */
+	int minCount() default 0;
+	
+	/**
+	 * Maximum number of values for collections, arrays and maps.
+	 */
+	int maxCount() default Integer.MAX_VALUE;
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2018  Calin Cosma
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.calincosma.jargs;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * ArgField holds an {@link Arg} annotated field together with its constraints, compiled once so that {@link Parser}
+ * can check every value while it is being converted.
+ */
+final class ArgField {
+	
+	private final Field field;
+	private final Arg arg;
+	private final Pattern pattern;
+	private final Set<String> allowedValues;
+	private final boolean ranged;
+	/* the bounds for exact comparisons of integral and decimal values, null when unbounded */
+	private final BigDecimal minBound;
+	private final BigDecimal maxBound;
+	private final boolean multiValued;
+	private final String propertyName;
+	private final String environmentName;
+	
+	
+	ArgField(Field field, Arg arg) {
+		this.field = field;
+		this.arg = arg;
+		this.field.setAccessible(true);
+		
+		Class<?> fieldType = field.getType();
+		this.multiValued = Collection.class.isAssignableFrom(fieldType) || Map.class.isAssignableFrom(fieldType) || fieldType.isArray();
+		this.ranged = arg.min() != Double.NEGATIVE_INFINITY || arg.max() != Double.POSITIVE_INFINITY;
+		
+		if (Double.isNaN(arg.min()) || Double.isNaN(arg.max())) {
+			throw new ArgsParserException("Invalid range for argument " + arg.value() + ": min and max must be numbers");
+		}
+		if (arg.min() > arg.max()) {
+			throw new ArgsParserException("Invalid range for argument " + arg.value() + ": min " + arg.min() + " is greater than max " + arg.max());
+		}
+		if (arg.minCount() > arg.maxCount()) {
+			throw new ArgsParserException("Invalid count for argument " + arg.value() + ": minCount " + arg.minCount() + " is greater than maxCount " + arg.maxCount());
+		}
+		if (ranged && !isNumeric(getValueType())) {
+			throw new ArgsParserException("Invalid range for argument " + arg.value() + ": min and max only apply to numeric values");
+		}
+		if (!multiValued && (arg.minCount() != 0 || arg.maxCount() != Integer.MAX_VALUE)) {
+			throw new ArgsParserException("Invalid count for argument " + arg.value() + ": minCount and maxCount only apply to collections, arrays and maps");
+		}
+		
+		try {
+			this.pattern = arg.pattern().isEmpty() ? null : Pattern.compile(arg.pattern());
+		} catch (PatternSyntaxException e) {
+			throw new ArgsParserException("Invalid pattern for argument " + arg.value(), e);
+		}
+		
+		this.minBound = Double.isInfinite(arg.min()) ? null : new BigDecimal(arg.min());
+		this.maxBound = Double.isInfinite(arg.max()) ? null : new BigDecimal(arg.max());
+		this.allowedValues = arg.allowed().length == 0 ? Collections.<String>emptySet() : new HashSet<>(Arrays.asList(arg.allowed()));
+		
+		/* "-dest-dir" is read from the property "dest-dir" and the environment variable "DEST_DIR" */
+		int start = 0;
+		while (start < arg.value().length() && arg.value().charAt(start) == '-') {
+			start++;
+		}
+		this.propertyName = arg.value().substring(start);
+		this.environmentName = propertyName.toUpperCase(Locale.ROOT).replaceAll("[^A-Z0-9]", "_");
+	}
+	
+	
+	Field getField() {
+		return field;
+	}
+	
+	
+	Arg getArg() {
+		return arg;
+	}
+	
+	
+	/**
+	 * True for collections, arrays and maps, which take any number of values.
+	 *
+	 * @return
+	 */
+	boolean isMultiValued() {
+		return multiValued;
+	}
+	
+	
+	String getPropertyName() {
+		return propertyName;
+	}
+	
+	
+	String getEnvironmentName() {
+		return environmentName;
+	}
+	
+	
+	/**
+	 * Check the number of values passed for a collection, array or map.
+	 *
+	 * @param count
+	 * @throws ArgsParserException
+	 */
+	void checkCount(int count) throws ArgsParserException {
+		if (count < arg.minCount() || count > arg.maxCount()) {
+			throw new ArgsParserException("Argument " + arg.value() + " expects between " + arg.minCount() + " and " + arg.maxCount() + " values, got " + count);
+		}
+	}
+	
+	
+	/**
+	 * Check a value as it was passed, before it is converted.
+	 *
+	 * @param value
+	 * @throws ArgsParserException
+	 */
+	void checkRaw(String value) throws ArgsParserException {
+		if (!allowedValues.isEmpty() && !allowedValues.contains(value)) {
+			throw new ArgsParserException("Value " + value + " is not allowed for argument " + arg.value() + ", expected one of " + allowedValues);
+		}
+		if (pattern != null && !pattern.matcher(value).matches()) {
+			throw new ArgsParserException("Value " + value + " for argument " + arg.value() + " does not match " + pattern.pattern());
+		}
+	}
+	
+	
+	/**
+	 * Check a value after it has been converted. Only numbers are range checked.
+	 *
+	 * @param value
+	 * @throws ArgsParserException
+	 */
+	void checkValue(Object value) throws ArgsParserException {
+		if (ranged && value instanceof Number && !isInRange((Number)value)) {
+			throw new ArgsParserException("Value " + value + " for argument " + arg.value() + " is outside the range [" + arg.min() + ", " + arg.max() + "]");
+		}
+	}
+	
+	
+	/**
+	 * Integral and decimal values are compared exactly, so that longs above 2^53 are not rounded.
+	 * Doubles and floats are compared as doubles, NaN is never in range.
+	 *
+	 * @param number
+	 * @return
+	 */
+	private boolean isInRange(Number number) {
+		BigDecimal decimal;
+		if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+			decimal = BigDecimal.valueOf(number.longValue());
+		} else if (number instanceof BigInteger) {
+			decimal = new BigDecimal((BigInteger)number);
+		} else if (number instanceof BigDecimal) {
+			decimal = (BigDecimal)number;
+		} else {
+			double d = number.doubleValue();
+			return d >= arg.min() && d <= arg.max();
+		}
+		return (minBound == null || decimal.compareTo(minBound) >= 0) && (maxBound == null || decimal.compareTo(maxBound) <= 0);
+	}
+	
+	
+	/**
+	 * The type of the values the constraints are checked against: the element type of collections and arrays,
+	 * the value type of maps, the field type otherwise.
+	 *
+	 * @return
+	 */
+	private Type getValueType() {
+		Class<?> fieldType = field.getType();
+		if (fieldType.isArray()) {
+			return fieldType.getComponentType();
+		}
+		if (Collection.class.isAssignableFrom(fieldType) || Map.class.isAssignableFrom(fieldType)) {
+			if (!(field.getGenericType() instanceof ParameterizedType)) {
+				return Object.class;
+			}
+			Type[] typeArguments = ((ParameterizedType)field.getGenericType()).getActualTypeArguments();
+			return Map.class.isAssignableFrom(fieldType) ? typeArguments[1] : typeArguments[0];
+		}
+		return fieldType;
+	}
+	
+	
+	private static boolean isNumeric(Type type) {
+		if (!(type instanceof Class)) {
+			return false;
+		}
+		Class<?> clazz = (Class<?>)type;
+		if (clazz.isPrimitive()) {
+			return clazz != Boolean.TYPE && clazz != Character.TYPE && clazz != Void.TYPE;
+		}
+		return Number.class.isAssignableFrom(clazz);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2018  Calin Cosma
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.calincosma.jargs;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ArgSchema is the index of the {@link Arg} annotated fields of a class, by switch and by property name.
+ * It is built once per class and shared by all parses of that class. The schemas are held in a {@link ClassValue},
+ * so they don't keep the classes from being unloaded.
+ */
+final class ArgSchema {
+	
+	private static final ClassValue<ArgSchema> SCHEMAS = new ClassValue<ArgSchema>() {
+		@Override
+		protected ArgSchema computeValue(Class<?> type) {
+			return new ArgSchema(type);
+		}
+	};
+	
+	private final Map<String, ArgField> options;
+	private final Map<String, ArgField> properties;
+	/* message for the first two switches mapping to the same property, null if there are none */
+	private final String propertyCollision;
+	
+	
+	private ArgSchema(Class<?> clazz) {
+		Map<String, ArgField> options = new HashMap<String, ArgField>();
+		Map<String, ArgField> properties = new HashMap<String, ArgField>();
+		String propertyCollision = null;
+		
+		for (Field field : clazz.getDeclaredFields()) {
+			Arg annotation = field.getAnnotation(Arg.class);
+			if (annotation != null && annotation.value() != null && annotation.value().length() > 0) {
+				ArgField argField = new ArgField(field, annotation);
+				options.put(annotation.value(), argField);
+				if (argField.getPropertyName().length() > 0) {
+					ArgField existing = properties.putIfAbsent(argField.getPropertyName(), argField);
+					if (existing != null && propertyCollision == null) {
+						propertyCollision = collision(existing, argField, "property " + argField.getPropertyName());
+					}
+				}
+			}
+		}
+		
+		this.options = Collections.unmodifiableMap(options);
+		this.properties = Collections.unmodifiableMap(properties);
+		this.propertyCollision = propertyCollision;
+	}
+	
+	
+	/**
+	 * Get the schema of the class, building it the first time the class is seen.
+	 *
+	 * @param clazz
+	 * @return
+	 * @throws ArgsParserException if a constraint is invalid
+	 */
+	static ArgSchema forClass(Class<?> clazz) throws ArgsParserException {
+		return SCHEMAS.get(clazz);
+	}
+	
+	
+	/**
+	 * Check that no two switches map to the same property. Called by the sources that read properties,
+	 * so that such switches can still be used from the command line.
+	 *
+	 * @throws ArgsParserException if two switches map to the same property
+	 */
+	void checkPropertyNames() throws ArgsParserException {
+		if (propertyCollision != null) {
+			throw new ArgsParserException(propertyCollision);
+		}
+	}
+	
+	
+	/**
+	 * Check that no two switches map to the same environment variable, such as "-v" and "-V".
+	 * Called by the sources that read the environment, so that such switches can still be used from the command line.
+	 *
+	 * @throws ArgsParserException if two switches map to the same environment variable
+	 */
+	void checkEnvironmentNames() throws ArgsParserException {
+		Map<String, ArgField> environment = new HashMap<String, ArgField>();
+		for (ArgField argField : options.values()) {
+			if (argField.getPropertyName().length() > 0) {
+				ArgField existing = environment.putIfAbsent(argField.getEnvironmentName(), argField);
+				if (existing != null) {
+					throw new ArgsParserException(collision(existing, argField, "environment variable " + argField.getEnvironmentName()));
+				}
+			}
+		}
+	}
+	
+	
+	private static String collision(ArgField first, ArgField second, String name) {
+		return "Arguments " + first.getArg().value() + " and " + second.getArg().value() + " both map to the " + name;
+	}
+	
+	
+	ArgField getOption(String name) {
+		return options.get(name);
+	}
+	
+	
+	ArgField getProperty(String name) {
+		return properties.get(name);
+	}
+	
+	
+	Collection<ArgField> getFields() {
+		return options.values();
+	}
+	
+	
+	int size() {
+		return options.size();
+	}
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2018  Calin Cosma
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language governing permissions and limitations under the License.
+ */
+
+package com.calincosma.jargs;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ArgSource is a source of argument values other than the command line, passed to {@link Parser#parse(String[], Class, ArgSource...)}.
+ * The names are derived from {@link Arg#value()} by removing the leading dashes: the switch "-dest-dir" is read from the property
+ * "dest-dir" or from the environment variable "DEST_DIR" (upper case, characters other than letters and digits replaced by "_"),
+ * each optionally preceded by a prefix.
+ *
+ * Collections, arrays and maps take a comma separated list of values, for example <strong>map=a=1,b=2</strong>.
+ * A comma inside a value is written as "\,", for example the environment variable <strong>NAMES=Doe\, John,Roe\, Jane</strong>.
+ * Properties files unescape their values first, so there the same value is written <strong>names=Doe\\, John,Roe\\, Jane</strong>.
+ * The items are used exactly as written: <strong>a, b</strong> is "a" and " b", <strong>a,,b</strong> has an empty second item.
+ * An empty value means no values, like a switch given without values on the command line.
+ */
+public abstract class ArgSource {
+	
+	/**
+	 * Environment variables, such as DEST_DIR for "-dest-dir".
+	 *
+	 * @return
+	 */
+	public static ArgSource environment() {
+		return environment("");
+	}
+	
+	
+	/**
+	 * Environment variables with a prefix, such as MYAPP_DEST_DIR for "-dest-dir" and the prefix "MYAPP_".
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public static ArgSource environment(String prefix) {
+		return new ArgSource() {
+			@Override
+			void resolve(ArgSchema schema, Map<ArgField, String> values) {
+				schema.checkEnvironmentNames();
+				for (ArgField argField : schema.getFields()) {
+					if (argField.getPropertyName().length() > 0 && !values.containsKey(argField)) {
+						String value = System.getenv(prefix + argField.getEnvironmentName());
+						if (value != null) {
+							values.put(argField, value);
+						}
+					}
+				}
+			}
+		};
+	}
+	
+	
+	/**
+	 * System properties, such as dest-dir for "-dest-dir".
+	 *
+	 * @return
+	 */
+	public static ArgSource systemProperties() {
+		return systemProperties("");
+	}
+	
+	
+	/**
+	 * System properties with a prefix, such as myapp.dest-dir for "-dest-dir" and the prefix "myapp.".
+	 *
+	 * @param prefix
+	 * @return
+	 */
+	public static ArgSource systemProperties(String prefix) {
+		return new ArgSource() {
+			@Override
+			void resolve(ArgSchema schema, Map<ArgField, String> values) {
+				schema.checkPropertyNames();
+				for (ArgField argField : schema.getFields()) {
+					if (argField.getPropertyName().length() > 0 && !values.containsKey(argField)) {
+						String value = System.getProperty(prefix + argField.getPropertyName());
+						if (value != null) {
+							values.put(argField, value);
+						}
+					}
+				}
+			}
+		};
+	}
+	
+	
+	/**
+	 * A UTF-8 properties file, such as one containing the line dest-dir=/tmp/dest.folder for "-dest-dir".
+	 *
+	 * @param file
+	 * @return
+	 */
+	public static ArgSource propertiesFile(Path file) {
+		return propertiesFile(file, "");
+	}
+	
+	
+	/**
+	 * A UTF-8 properties file with a prefix, such as one containing the line myapp.dest-dir=/tmp/dest.folder for "-dest-dir" and the prefix "myapp.".
+	 * The file is read line by line, it is never loaded whole. As with {@link java.util.Properties}, when a key appears
+	 * more than once in the file the last value is used.
+	 *
+	 * @param file
+	 * @param prefix
+	 * @return
+	 */
+	public static ArgSource propertiesFile(Path file, String prefix) {
+		return new ArgSource() {
+			@Override
+			void resolve(ArgSchema schema, Map<ArgField, String> values) throws IOException {
+				schema.checkPropertyNames();
+				/* later lines overwrite earlier ones, but never the values resolved before this file */
+				Map<ArgField, String> fileValues = new HashMap<>();
+				try (BufferedReader reader = Files.newBufferedReader(file)) {
+					StringBuilder logicalLine = new StringBuilder();
+					String line;
+					while ((line = reader.readLine()) != null) {
+						int start = skipWhitespace(line, 0);
+						if (logicalLine.length() == 0 && (start == line.length() || line.charAt(start) == '#' || line.charAt(start) == '!')) {
+							/* blank line or comment */
+							continue;
+						}
+						
+						if (endsWithContinuation(line)) {
+							logicalLine.append(line, start, line.length() - 1);
+							continue;
+						}
+						
+						logicalLine.append(line, start, line.length());
+						readProperty(logicalLine.toString(), prefix, schema, values, fileValues);
+						logicalLine.setLength(0);
+					}
+					
+					if (logicalLine.length() > 0) {
+						readProperty(logicalLine.toString(), prefix, schema, values, fileValues);
+					}
+				}
+				values.putAll(fileValues);
+			}
+		};
+	}
+	
+	
+	ArgSource() {
+	}
+	
+	
+	/**
+	 * Add the values found in this source to the values map, for the fields that don't have a value yet.
+	 *
+	 * @param schema
+	 * @param values
+	 * @throws IOException
+	 */
+	abstract void resolve(ArgSchema schema, Map<ArgField, String> values) throws IOException;
+	
+	
+	/**
+	 * Split a properties line into key and value, and keep the value in fileValues if the key belongs to a field
+	 * without a value in values. Only the values that are kept are unescaped.
+	 *
+	 * @param line
+	 * @param prefix
+	 * @param schema
+	 * @param values
+	 * @param fileValues
+	 */
+	private static void readProperty(String line, String prefix, ArgSchema schema, Map<ArgField, String> values, Map<ArgField, String> fileValues) {
+		int keyEnd = 0;
+		while (keyEnd < line.length()) {
+			char c = line.charAt(keyEnd);
+			if (c == '\\') {
+				keyEnd += 2;
+				continue;
+			}
+			if (c == '=' || c == ':' || Character.isWhitespace(c)) {
+				break;
+			}
+			keyEnd++;
+		}
+		keyEnd = Math.min(keyEnd, line.length());
+		
+		String key = unescape(line, 0, keyEnd);
+		if (!key.startsWith(prefix)) {
+			return;
+		}
+		ArgField argField = schema.getProperty(key.substring(prefix.length()));
+		if (argField == null || values.containsKey(argField)) {
+			return;
+		}
+		
+		int valueStart = skipWhitespace(line, keyEnd);
+		if (valueStart < line.length() && (line.charAt(valueStart) == '=' || line.charAt(valueStart) == ':')) {
+			valueStart = skipWhitespace(line, valueStart + 1);
+		}
+		fileValues.put(argField, unescape(line, valueStart, line.length()));
+	}
+	
+	
+	private static int skipWhitespace(String line, int index) {
+		while (index < line.length() && Character.isWhitespace(line.charAt(index))) {
+			index++;
+		}
+		return index;
+	}
+	
+	
+	/**
+	 * A line is continued on the next one if it ends with an odd number of backslashes.
+	 *
+	 * @param line
+	 * @return
+	 */
+	private static boolean endsWithContinuation(String line) {
+		int backslashes = 0;
+		for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+			backslashes++;
+		}
+		return backslashes % 2 == 1;
+	}
+	
+	
+	private static String unescape(String line, int start, int end) {
+		if (line.indexOf('\\', start) < 0 || line.indexOf('\\', start) >= end) {
+			return line.substring(start, end);
+		}
+		
+		StringBuilder sb = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			char c = line.charAt(i);
+			if (c != '\\' || i + 1 == end) {
+				sb.append(c);
+				continue;
+			}
+			
+			c = line.charAt(++i);
+			switch (c) {
+				case 't':
+					sb.append('\t');
+					break;
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'u':
+					if (i + 4 >= end) {
+						throw new ArgsParserException("Malformed \\uxxxx encoding in " + line);
+					}
+					try {
+						sb.append((char)Integer.parseInt(line.substring(i + 1, i + 5), 16));
+					} catch (NumberFormatException e) {
+						throw new ArgsParserException("Malformed \\uxxxx encoding in " + line, e);
+					}
+					i += 4;
+					break;
+				default:
+					sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
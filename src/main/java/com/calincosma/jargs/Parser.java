@@ -67,6 +67,12 @@ import java.util.stream.Collectors;
  *
  * The POJO must have a no argument constructor.
  *
+ * Values can be constrained through the {@link Arg} annotation (range, pattern, allowed values, number of values).
+ * The annotations of a class are read once and cached, constraints are checked as the values are converted.
+ *
+ * Values can also be read from other sources, such as environment variables, system properties or properties files,
+ * see {@link ArgSource}. The command line takes precedence over the sources, which take precedence in the order they are given.
+ *
  * If for any reason the parsing of arguments fails, a {@link ArgsParserException} is thrown.
  *
  * Usage examples can be seen in the ParserTest class.
@@ -94,26 +100,34 @@ public class Parser {
 	 * @throws ArgsParserException
 	 */
 	public <ARGS> ARGS parse(String[] argsArray, Class<ARGS> clazz) throws ArgsParserException {
+		return parse(argsArray, clazz, new ArgSource[0]);
+	}
+	
+	
+	/**
+	 * Parse the arguments in the argsArray and set them as fields of a POJO of type ARGS, then fill the fields
+	 * that were not on the command line from the sources. A field is read from the first source that has a value for it.
+	 *
+	 * @param argsArray
+	 * @param clazz
+	 * @param sources
+	 * @param <ARGS>
+	 * @return new POJO of type ARGS, with the arguments as fields
+	 * @throws ArgsParserException
+	 */
+	public <ARGS> ARGS parse(String[] argsArray, Class<ARGS> clazz, ArgSource... sources) throws ArgsParserException {
 		try {
 			ARGS args = clazz.newInstance();
 			
-			Map<String, Field> options = new HashMap<String, Field>();
-			Set<Field> requiredFields = new HashSet<Field>();
-			Set<Field> treatedFields = new HashSet<Field>();
-			Field currentField = null;
+			ArgSchema schema = ArgSchema.forClass(clazz);
+			Set<ArgField> requiredFields = new HashSet<ArgField>();
+			Set<ArgField> treatedFields = new HashSet<ArgField>();
+			ArgField currentField = null;
 			
-			
-			/* go through all Args annotations, build helper collections */
-			for (Field field : clazz.getDeclaredFields()) {
-				Arg annotation = field.getAnnotation(Arg.class);
-				if (annotation != null) {
-					if (annotation.value() != null && annotation.value().length() > 0) {
-						options.put(annotation.value(), field);
-					}
-					
-					if (annotation.required()) {
-						requiredFields.add(field);
-					}
+			for (ArgField argField : schema.getFields()) {
+				if (argField.getArg().required() || argField.getArg().minCount() > 0) {
+					/* an argument that needs at least one value must be given */
+					requiredFields.add(argField);
 				}
 			}
 			
@@ -123,12 +137,11 @@ public class Parser {
 			List<String> currentValues = new ArrayList<>();
 			
 			while (!argsList.isEmpty()) {
-				if (options.get(argsList.getFirst()) != null) {
-					currentField = options.get((argsList.pop()));
-					currentField.setAccessible(true);
+				if (schema.getOption(argsList.getFirst()) != null) {
+					currentField = schema.getOption(argsList.pop());
 				}
 				
-				while (!argsList.isEmpty() && options.get(argsList.getFirst()) == null) {
+				while (!argsList.isEmpty() && schema.getOption(argsList.getFirst()) == null) {
 					currentValues.add(argsList.pop());
 				}
 				
@@ -142,9 +155,29 @@ public class Parser {
 			}
 			
 			
+			if (sources.length > 0) {
+				/* the fields set from the command line are already resolved */
+				Map<ArgField, String> sourcedValues = new HashMap<>();
+				for (ArgField argField : treatedFields) {
+					sourcedValues.put(argField, null);
+				}
+				
+				for (int i = 0; i < sources.length && sourcedValues.size() < schema.size(); i++) {
+					sources[i].resolve(schema, sourcedValues);
+				}
+				
+				for (Map.Entry<ArgField, String> entry : sourcedValues.entrySet()) {
+					if (entry.getValue() != null) {
+						setValues(args, entry.getKey(), splitValues(entry.getKey(), entry.getValue()));
+						requiredFields.remove(entry.getKey());
+					}
+				}
+			}
+			
+			
 			if (requiredFields.size() > 0) {
 				String requiredFieldsNames = requiredFields.stream()
-				                                           .map(field -> field.getAnnotation(Arg.class))
+				                                           .map(ArgField::getArg)
 				                                           .filter(a -> a.value() != null)
 				                                           .map(a -> a.value())
 				                                           .collect(Collectors.joining(","));
@@ -152,6 +185,8 @@ public class Parser {
 			}
 			
 			return args;
+		} catch (ArgsParserException e) {
+			throw e;
 		} catch (Exception e) {
 			throw new ArgsParserException(e);
 		}
@@ -159,20 +194,64 @@ public class Parser {
 	
 	
 	
+	/**
+	 * Split a value read from an {@link ArgSource}. Collections, arrays and maps take comma separated values,
+	 * where "\," stands for a comma inside a value; any other backslash is kept as it is. The items are kept exactly
+	 * as written, including spaces and empty items, and an empty value is an empty list, like a switch without values.
+	 * Any other field takes the value as it is.
+	 *
+	 * @param argField
+	 * @param value
+	 * @return
+	 */
+	private List<String> splitValues(ArgField argField, String value) {
+		if (!argField.isMultiValued()) {
+			return Collections.singletonList(value);
+		}
+		
+		List<String> values = new ArrayList<>();
+		if (value.isEmpty()) {
+			return values;
+		}
+		
+		StringBuilder item = new StringBuilder();
+		for (int i = 0; i <= value.length(); i++) {
+			char c = i < value.length() ? value.charAt(i) : ',';
+			if (c == '\\' && i + 1 < value.length() && value.charAt(i + 1) == ',') {
+				item.append(',');
+				i++;
+			} else if (c == ',') {
+				values.add(item.toString());
+				item.setLength(0);
+			} else {
+				item.append(c);
+			}
+		}
+		return values;
+	}
+	
+	
+	
 	/**
 	 * Process the list of values and sets the value of the field as a collection, array, or single object depending on the field type.
 	 *
 	 * @param args
-	 * @param field
+	 * @param argField
 	 * @param values
 	 * @param <ARGS>
 	 * @throws IllegalAccessException
 	 * @throws InstantiationException
 	 */
-	private <ARGS> void setValues(ARGS args, Field field, List<String> values) throws IllegalAccessException, InstantiationException {
+	private <ARGS> void setValues(ARGS args, ArgField argField, List<String> values) throws IllegalAccessException, InstantiationException {
 		/* it's a value/param */
+		Field field = argField.getField();
 		Class fieldType = field.getType();
 		
+		if (argField.isMultiValued()) {
+			/* check the number of values before converting any of them */
+			argField.checkCount(values.size());
+		}
+		
 		if (Collection.class.isAssignableFrom(fieldType)) {
 			/* COLLECTIONS */
 			if (fieldType.isInterface()) {
@@ -196,7 +275,7 @@ public class Parser {
 			
 			
 			for (String value : values) {
-				((Collection)field.get(args)).add(getValue(value, collectionType));
+				((Collection)field.get(args)).add(getCheckedValue(value, collectionType, argField));
 			}
 		} else if (Map.class.isAssignableFrom(fieldType)) {
 			/* MAPS */
@@ -223,21 +302,39 @@ public class Parser {
 			for (String value : values) {
 				String mapKey = value.substring(0, value.indexOf("="));
 				String mapValue = value.substring(value.indexOf("=") + 1);
-				((Map)field.get(args)).put(getValue(mapKey, keyType), getValue(mapValue, valueType));
+				((Map)field.get(args)).put(getValue(mapKey, keyType), getCheckedValue(mapValue, valueType, argField));
 			}
 		} else if (fieldType.isArray()) {
 			/* ARRAYS */
 			Class arrayType = fieldType.getComponentType();
-			createArray(args, field, values, arrayType);
+			createArray(args, argField, values, arrayType);
 		} else if (values.size() == 1) {
 			/* single values, when the type is not a collection or array, should be single objects */
-			field.set(args, getValue(values.get(0), fieldType));
+			field.set(args, getCheckedValue(values.get(0), fieldType, argField));
 		} else {
 			// TODO throw exception because this case is not supported
 		}
 	}
 	
 	
+	/**
+	 * Convert a single value with {@link #getValue(String, Class)}, checking the constraints of the field before and after the conversion.
+	 *
+	 * @param arg
+	 * @param fieldType
+	 * @param argField
+	 * @param <VALUE>
+	 * @return
+	 * @throws ArgsParserException if the value does not satisfy the constraints
+	 */
+	private <VALUE> VALUE getCheckedValue(String arg, Class<VALUE> fieldType, ArgField argField) throws ArgsParserException {
+		argField.checkRaw(arg);
+		VALUE value = getValue(arg, fieldType);
+		argField.checkValue(value);
+		return value;
+	}
+	
+	
 	/**
 	 * Take a string and return the value depending on the type. Almost all primitive types are supported, String,
 	 * and all objects that have a static method named valueOf that takes a parameter of type String.
@@ -292,21 +389,21 @@ public class Parser {
 	 * Creates an array and fills in the values.
 	 *
 	 * @param args
-	 * @param field
+	 * @param argField
 	 * @param values
 	 * @param arrayTypeClass
 	 * @param <ARGS>
 	 * @param <ArrayType>
 	 * @throws IllegalAccessException
 	 */
-	private <ARGS, ArrayType> void createArray(ARGS args, Field field, List<String> values, Class<ArrayType> arrayTypeClass) throws IllegalAccessException {
+	private <ARGS, ArrayType> void createArray(ARGS args, ArgField argField, List<String> values, Class<ArrayType> arrayTypeClass) throws IllegalAccessException {
 		Object array = Array.newInstance(arrayTypeClass, values.size());
 		int i = 0;
 		for (String value : values) {
-			Array.set(array, i++, getValue(value, arrayTypeClass));
+			Array.set(array, i++, getCheckedValue(value, arrayTypeClass, argField));
 		}
 		
-		field.set(args, array);
+		argField.getField().set(args, array);
 	}
 }
 
@@ -11,9 +11,12 @@
 package com.calincosma.jargs;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
@@ -160,6 +163,293 @@ class ParserTest {
 		Assertions.assertEquals(MyEnum.MID, myArgs.getMyEnum());
 	}
 	
+	@Test
+	void parseConstrainedValues() {
+		String[] params = new String[] {"-port", "8080", "-host", "node-1", "-mode", "fast", "-w", "0.5", "1.5", "-props", "a=1", "b=2"};
+		ConstrainedArgs constrainedArgs = parser.parse(params, ConstrainedArgs.class);
+		Assertions.assertEquals(8080, constrainedArgs.getPort());
+		Assertions.assertEquals("node-1", constrainedArgs.getHost());
+		Assertions.assertEquals("fast", constrainedArgs.getMode());
+		Assertions.assertArrayEquals(new double[] {0.5d, 1.5d}, constrainedArgs.getWeights());
+		Assertions.assertEquals(2, constrainedArgs.getProps().size());
+	}
+	
+	@Test
+	void parseValueOutOfRange() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-port", "70000", "-w", "1"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseLongAtRangeBound() {
+		ConstrainedArgs constrainedArgs = parser.parse(new String[] {"-big", "9007199254740992", "-w", "1"}, ConstrainedArgs.class);
+		Assertions.assertEquals(9007199254740992L, constrainedArgs.getBig());
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-big", "9007199254740993", "-w", "1"}, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseValueNotMatchingPattern() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-host", "Node_1", "-w", "1"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseValueNotAllowed() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-mode", "medium", "-w", "1"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseTooManyValues() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-w", "0.1", "0.2", "0.3", "0.4"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseMapValueOutOfRange() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-props", "a=1", "b=20", "-w", "1"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseMissingMinCount() {
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			String[] params = new String[] {"-port", "8080"};
+			parser.parse(params, ConstrainedArgs.class);
+		});
+	}
+	
+	@Test
+	void parseInvalidRange() {
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-r", "5"}, InvalidRangeArgs.class);
+		});
+		Assertions.assertTrue(e.getMessage().contains("argument -r"));
+	}
+	
+	@Test
+	void parseInvalidPattern() {
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-p", "a"}, InvalidPatternArgs.class);
+		});
+		Assertions.assertTrue(e.getMessage().contains("argument -p"));
+	}
+	
+	@Test
+	void parseRangeOnNonNumeric() {
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-port", "70000"}, RangeOnStringArgs.class);
+		});
+		Assertions.assertTrue(e.getMessage().contains("argument -port"));
+	}
+	
+	@Test
+	void parseCountOnSingleValue() {
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-c", "a"}, CountOnSingleValueArgs.class);
+		});
+		Assertions.assertTrue(e.getMessage().contains("argument -c"));
+	}
+	
+	@Test
+	void parsePropertyNameCollision() {
+		PropertyCollisionArgs propertyCollisionArgs = parser.parse(new String[] {"-v", "1", "--v", "2"}, PropertyCollisionArgs.class);
+		Assertions.assertEquals("1", propertyCollisionArgs.getV());
+		Assertions.assertEquals("2", propertyCollisionArgs.getVerbose());
+		
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-v", "1"}, PropertyCollisionArgs.class, ArgSource.systemProperties("jargs.test."));
+		});
+		Assertions.assertTrue(e.getMessage().contains("-v") && e.getMessage().contains("--v"));
+	}
+	
+	@Test
+	void parseEnvironmentNameCollision() {
+		EnvironmentCollisionArgs environmentCollisionArgs = parser.parse(new String[] {"-dest-dir", "a"}, EnvironmentCollisionArgs.class,
+				ArgSource.systemProperties("jargs.test."));
+		Assertions.assertEquals("a", environmentCollisionArgs.getDestDir());
+		
+		ArgsParserException e = Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-dest-dir", "a"}, EnvironmentCollisionArgs.class, ArgSource.environment("JARGS_TEST_"));
+		});
+		Assertions.assertTrue(e.getMessage().contains("-dest-dir") && e.getMessage().contains("-dest_dir"));
+	}
+	
+	@Test
+	void parseCaseOnlySwitches() {
+		System.setProperty("jargs.test.V", "2");
+		try {
+			CaseOnlyArgs caseOnlyArgs = parser.parse(new String[] {"-v", "1"}, CaseOnlyArgs.class, ArgSource.systemProperties("jargs.test."));
+			Assertions.assertEquals("1", caseOnlyArgs.getVerbose());
+			Assertions.assertEquals("2", caseOnlyArgs.getVersion());
+		} finally {
+			System.clearProperty("jargs.test.V");
+		}
+		
+		Assertions.assertThrows(ArgsParserException.class, () -> {
+			parser.parse(new String[] {"-v", "1"}, CaseOnlyArgs.class, ArgSource.environment("JARGS_TEST_"));
+		});
+	}
+	
+	@Test
+	void parseSystemProperties() {
+		System.setProperty("jargs.test.m", "From_property");
+		System.setProperty("jargs.test.set", "21,49,38");
+		try {
+			MyArgs myArgs = parser.parse(new String[] {"-i", "9876"}, MyArgs.class, ArgSource.systemProperties("jargs.test."));
+			Assertions.assertEquals("From_property", myArgs.getMandatory());
+			Assertions.assertEquals(new HashSet<>(Arrays.asList(21, 49, 38)), myArgs.getSet());
+			Assertions.assertEquals(Integer.valueOf(9876), myArgs.getI());
+		} finally {
+			System.clearProperty("jargs.test.m");
+			System.clearProperty("jargs.test.set");
+		}
+	}
+	
+	@Test
+	void parseEscapedComma() throws IOException {
+		System.setProperty("jargs.test.c", "Doe\\, John,Roe\\, Jane,C:\\dir");
+		Path file = Files.createTempFile("jargs", ".properties");
+		try {
+			Files.write(file, Arrays.asList("c=Doe\\\\, John,Roe\\\\, Jane", "m=This_is_mandatory"));
+			MyArgs fromProperty = parser.parse(new String[] {"-m", "This_is_mandatory"}, MyArgs.class, ArgSource.systemProperties("jargs.test."));
+			Assertions.assertEquals(Arrays.asList("Doe, John", "Roe, Jane", "C:\\dir"), fromProperty.getCollection());
+			MyArgs fromFile = parser.parse(new String[0], MyArgs.class, ArgSource.propertiesFile(file));
+			Assertions.assertEquals(Arrays.asList("Doe, John", "Roe, Jane"), fromFile.getCollection());
+		} finally {
+			System.clearProperty("jargs.test.c");
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	void parseSourceItemsAsWritten() {
+		System.setProperty("jargs.test.c", " a,,b ");
+		try {
+			MyArgs myArgs = parser.parse(new String[] {"-m", "This_is_mandatory"}, MyArgs.class, ArgSource.systemProperties("jargs.test."));
+			Assertions.assertEquals(Arrays.asList(" a", "", "b "), myArgs.getCollection());
+		} finally {
+			System.clearProperty("jargs.test.c");
+		}
+	}
+	
+	@Test
+	void parseEmptySourceValueCount() {
+		System.setProperty("jargs.test.w", "");
+		try {
+			Assertions.assertThrows(ArgsParserException.class, () -> {
+				parser.parse(new String[0], ConstrainedArgs.class, ArgSource.systemProperties("jargs.test."));
+			});
+		} finally {
+			System.clearProperty("jargs.test.w");
+		}
+	}
+	
+	@Test
+	void deriveSourceNames() {
+		ArgField argField = ArgSchema.forClass(EnvironmentArgs.class).getOption("-dest-dir");
+		Assertions.assertEquals("dest-dir", argField.getPropertyName());
+		Assertions.assertEquals("DEST_DIR", argField.getEnvironmentName());
+		argField = ArgSchema.forClass(EnvironmentArgs.class).getOption("--java.home");
+		Assertions.assertEquals("java.home", argField.getPropertyName());
+		Assertions.assertEquals("JAVA_HOME", argField.getEnvironmentName());
+	}
+	
+	@Test
+	void parseEnvironment() {
+		Assumptions.assumeTrue(System.getenv("PATH") != null);
+		EnvironmentArgs environmentArgs = parser.parse(new String[] {"-dest-dir", "/tmp/dest.folder"}, EnvironmentArgs.class, ArgSource.environment());
+		Assertions.assertEquals(System.getenv("PATH"), environmentArgs.getPath());
+		Assertions.assertEquals("/tmp/dest.folder", environmentArgs.getDestDir());
+		Assertions.assertNull(environmentArgs.getTh());
+	}
+	
+	@Test
+	void parseEnvironmentWithPrefix() {
+		Assumptions.assumeTrue(System.getenv("PATH") != null);
+		/* "-th" with the prefix "PA" is read from PATH */
+		EnvironmentArgs environmentArgs = parser.parse(new String[0], EnvironmentArgs.class, ArgSource.environment("PA"));
+		Assertions.assertEquals(System.getenv("PATH"), environmentArgs.getTh());
+		Assertions.assertNull(environmentArgs.getPath());
+	}
+	
+	@Test
+	void parsePropertiesFile() throws IOException {
+		Path file = Files.createTempFile("jargs", ".properties");
+		try {
+			Files.write(file, Arrays.asList(
+					"# comment",
+					"m = From_file",
+					"map=12=48,\\",
+					"    5=21",
+					"o:with\\u0020space",
+					"unknown=ignored"));
+			MyArgs myArgs = parser.parse(new String[0], MyArgs.class, ArgSource.propertiesFile(file));
+			Map<Integer, Long> map = new HashMap<>();
+			map.put(12, 48L);
+			map.put(5, 21L);
+			Assertions.assertEquals("From_file", myArgs.getMandatory());
+			Assertions.assertEquals(map, myArgs.getMap());
+			Assertions.assertEquals("with space", myArgs.getOptionalString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	void parsePropertiesFileDuplicateKey() throws IOException {
+		Path file = Files.createTempFile("jargs", ".properties");
+		try {
+			Files.write(file, Arrays.asList("m=This_is_mandatory", "l=1", "o=first", "l=2"));
+			MyArgs myArgs = parser.parse(new String[] {"-o", "From_argv"}, MyArgs.class, ArgSource.propertiesFile(file));
+			Assertions.assertEquals(Long.valueOf(2), myArgs.getL());
+			Assertions.assertEquals("From_argv", myArgs.getOptionalString());
+		} finally {
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	void parseSourcePrecedence() throws IOException {
+		Path file = Files.createTempFile("jargs", ".properties");
+		System.setProperty("jargs.test.o", "From_property");
+		try {
+			Files.write(file, Arrays.asList("m=From_file", "o=From_file", "l=847592"));
+			MyArgs myArgs = parser.parse(new String[] {"-m", "This_is_mandatory"}, MyArgs.class,
+					ArgSource.systemProperties("jargs.test."), ArgSource.propertiesFile(file));
+			Assertions.assertEquals("This_is_mandatory", myArgs.getMandatory());
+			Assertions.assertEquals("From_property", myArgs.getOptionalString());
+			Assertions.assertEquals(Long.valueOf(847592), myArgs.getL());
+		} finally {
+			System.clearProperty("jargs.test.o");
+			Files.delete(file);
+		}
+	}
+	
+	@Test
+	void parseSourceValueConstrained() {
+		System.setProperty("jargs.test.port", "70000");
+		try {
+			Assertions.assertThrows(ArgsParserException.class, () -> {
+				parser.parse(new String[] {"-w", "1"}, ConstrainedArgs.class, ArgSource.systemProperties("jargs.test."));
+			});
+		} finally {
+			System.clearProperty("jargs.test.port");
+		}
+	}
+	
 }
 
 
@@ -301,4 +591,147 @@ class MyArgs {
 
 enum MyEnum {
 	FIRST, MID, LAST
-}
\ No newline at end of file
+}
+
+class ConstrainedArgs {
+	
+	@Arg(value = "-big", max = 9007199254740992d)
+	private long big;
+	
+	@Arg(value = "-host", pattern = "[a-z]+-\\d+")
+	private String host;
+	
+	@Arg(value = "-mode", allowed = {"fast", "slow"})
+	private String mode;
+	
+	@Arg(value = "-port", min = 1, max = 65535)
+	private int port;
+	
+	@Arg(value = "-props", min = 0, max = 9)
+	private Map<String, Integer> props;
+	
+	@Arg(value = "-w", min = 0, minCount = 1, maxCount = 3)
+	private double[] weights;
+	
+	public long getBig() {
+		return big;
+	}
+	
+	public String getHost() {
+		return host;
+	}
+	
+	public String getMode() {
+		return mode;
+	}
+	
+	public int getPort() {
+		return port;
+	}
+	
+	public Map<String, Integer> getProps() {
+		return props;
+	}
+	
+	public double[] getWeights() {
+		return weights;
+	}
+}
+
+class InvalidRangeArgs {
+	
+	@Arg(value = "-r", min = 10, max = 1)
+	private int r;
+}
+
+class InvalidPatternArgs {
+	
+	@Arg(value = "-p", pattern = "[a-z")
+	private String p;
+}
+
+class RangeOnStringArgs {
+	
+	@Arg(value = "-port", min = 1, max = 65535)
+	private String port;
+}
+
+class CountOnSingleValueArgs {
+	
+	@Arg(value = "-c", maxCount = 1)
+	private String c;
+}
+
+class PropertyCollisionArgs {
+	
+	@Arg("-v")
+	private String v;
+	
+	@Arg("--v")
+	private String verbose;
+	
+	public String getV() {
+		return v;
+	}
+	
+	public String getVerbose() {
+		return verbose;
+	}
+}
+
+class EnvironmentCollisionArgs {
+	
+	@Arg("-dest-dir")
+	private String destDir;
+	
+	@Arg("-dest_dir")
+	private String otherDestDir;
+	
+	public String getDestDir() {
+		return destDir;
+	}
+}
+
+class CaseOnlyArgs {
+	
+	@Arg("-v")
+	private String verbose;
+	
+	@Arg("-V")
+	private String version;
+	
+	public String getVerbose() {
+		return verbose;
+	}
+	
+	public String getVersion() {
+		return version;
+	}
+}
+
+class EnvironmentArgs {
+	
+	@Arg("-dest-dir")
+	private String destDir;
+	
+	@Arg("--java.home")
+	private String javaHome;
+	
+	@Arg("-path")
+	private String path;
+	
+	@Arg("-th")
+	private String th;
+	
+	public String getDestDir() {
+		return destDir;
+	}
+	
+	public String getPath() {
+		return path;
+	}
+	
+	public String getTh() {
+		return th;
+	}
+}